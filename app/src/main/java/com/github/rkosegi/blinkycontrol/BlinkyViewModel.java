@@ -0,0 +1,237 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinkycontrol;
+
+import android.annotation.SuppressLint;
+import android.app.Activity;
+import android.app.Application;
+import android.bluetooth.BluetoothDevice;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.github.rkosegi.blinky.client.BlinkyDevice;
+import com.github.rkosegi.blinky.client.CommandJournal;
+import com.github.rkosegi.blinky.client.LinkState;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.preference.PreferenceManager;
+
+import static com.github.rkosegi.blinkycontrol.Constants.PREF_KEY_CMD_JOURNAL_PREFIX;
+import static com.github.rkosegi.blinkycontrol.Constants.PREF_KEY_DEV_ADDR;
+
+/**
+ * Holds {@link BlinkyDevice} across configuration changes and activities, so that GATT connection is not
+ * re-established each time activity is recreated. It is scoped to {@link BlinkyApplication}, device is detached
+ * once main activity is finished for good, see {@link #release()}.
+ * Each device address has its own command journal, so commands are never replayed to other device.
+ * Battery is polled while at least one activity showing the device is started.
+ */
+public class BlinkyViewModel extends AndroidViewModel {
+    // journal changes at frame rate while painting LEDs, only latest state within this window is persisted
+    private static final long JOURNAL_PERSIST_DELAY_MS = 500L;
+    private static final long BATTERY_POLL_INTERVAL_MS = 60_000L;
+    private final SharedPreferences prefs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // preference key -> latest encoded journal, not yet persisted
+    private final Map<String, String> pendingJournals = new ConcurrentHashMap<>();
+    private final AtomicBoolean persistScheduled = new AtomicBoolean();
+    private final Runnable journalWriter = this::persistJournal;
+    private final List<BlinkyDevice.Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Runnable batteryPoll = new Runnable() {
+        @Override
+        public void run() {
+            blinky.refreshBatteryInfo();
+            handler.postDelayed(this, BATTERY_POLL_INTERVAL_MS);
+        }
+    };
+    // forwards events of current device to all registered listeners
+    private final BlinkyDevice.Listener fanOut = new BlinkyDevice.Listener() {
+        @Override
+        public void onLinkStateChanged(BlinkyDevice device, LinkState state) {
+            handler.post(BlinkyViewModel.this::updateBatteryPoll);
+            for (BlinkyDevice.Listener l : listeners) {
+                l.onLinkStateChanged(device, state);
+            }
+        }
+
+        @Override
+        public void onDeviceInfoChanged(BlinkyDevice device) {
+            for (BlinkyDevice.Listener l : listeners) {
+                l.onDeviceInfoChanged(device);
+            }
+        }
+
+        @Override
+        public void onJournalChanged(BlinkyDevice device, int size, long lastFlushLatencyMs) {
+            for (BlinkyDevice.Listener l : listeners) {
+                l.onJournalChanged(device, size, lastFlushLatencyMs);
+            }
+        }
+    };
+    private volatile BlinkyDevice blinky;
+    private String address;
+    private int startedClients;
+    private boolean polling;
+
+    public BlinkyViewModel(@NonNull Application application) {
+        super(application);
+        prefs = PreferenceManager.getDefaultSharedPreferences(application);
+        address = prefs.getString(PREF_KEY_DEV_ADDR, null);
+        blinky = createDevice(address);
+    }
+
+    /**
+     * @return view model shared by all activities of application
+     */
+    public static BlinkyViewModel of(@NonNull Activity activity) {
+        final BlinkyApplication app = (BlinkyApplication) activity.getApplication();
+        return new ViewModelProvider(app, ViewModelProvider.AndroidViewModelFactory.getInstance(app))
+                .get(BlinkyViewModel.class);
+    }
+
+    /**
+     * @return device for currently configured address, instance changes when other device is connected
+     */
+    public BlinkyDevice getDevice() {
+        return blinky;
+    }
+
+    /**
+     * Registers listener for events of current device, it is called from thread that caused the change.
+     */
+    public void addListener(@NonNull BlinkyDevice.Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(@NonNull BlinkyDevice.Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Activity showing the device became visible, battery is polled while there is at least one.
+     */
+    public void clientStarted() {
+        startedClients++;
+        updateBatteryPoll();
+    }
+
+    public void clientStopped() {
+        startedClients--;
+        updateBatteryPoll();
+    }
+
+    /**
+     * Connects to given device, unless it is already connected or connecting.
+     * When address differs from current one, current device is detached and replaced.
+     *
+     * @param force when true, existing connection is re-established
+     */
+    @SuppressLint("MissingPermission")
+    public void connect(@NonNull BluetoothDevice device, boolean force) {
+        if (!device.getAddress().equals(address)) {
+            blinky.setListener(null);
+            blinky.detach();
+            persistJournal();
+            address = device.getAddress();
+            blinky = createDevice(address);
+            handler.removeCallbacks(batteryPoll);
+            polling = false;
+        } else if (!force && blinky.getLinkState() != LinkState.DISCONNECTED) {
+            return;
+        }
+        blinky.attach(new GattTransport(getApplication(), device));
+    }
+
+    /**
+     * Writes pending journal state to preferences right away, e.g. when activity is paused.
+     */
+    public void persistJournal() {
+        handler.removeCallbacks(journalWriter);
+        persistScheduled.set(false);
+        if (pendingJournals.isEmpty()) {
+            return;
+        }
+        final SharedPreferences.Editor editor = prefs.edit();
+        for (String key : pendingJournals.keySet()) {
+            editor.putString(key, pendingJournals.remove(key));
+        }
+        editor.apply();
+    }
+
+    /**
+     * Disconnects from device and persists its journal, next {@link #connect} connects again.
+     */
+    public void release() {
+        handler.removeCallbacks(batteryPoll);
+        polling = false;
+        blinky.detach();
+        persistJournal();
+    }
+
+    private BlinkyDevice createDevice(String address) {
+        final BlinkyDevice device;
+        if (address == null) {
+            // not configured yet, nothing to persist journal for
+            device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), SystemClock::elapsedRealtime);
+        } else {
+            final String key = PREF_KEY_CMD_JOURNAL_PREFIX + address;
+            device = new BlinkyDevice(new CommandJournal(prefs.getString(key, null),
+                    encoded -> schedulePersistJournal(key, encoded)), SystemClock::elapsedRealtime);
+        }
+        device.setListener(fanOut);
+        return device;
+    }
+
+    // called from any thread, journal is acknowledged from GATT callbacks
+    private void schedulePersistJournal(String key, String encoded) {
+        pendingJournals.put(key, encoded);
+        if (persistScheduled.compareAndSet(false, true)) {
+            handler.postDelayed(journalWriter, JOURNAL_PERSIST_DELAY_MS);
+        }
+    }
+
+    // running poll is kept as is, so that moving between activities does not postpone it
+    private void updateBatteryPoll() {
+        final boolean poll = startedClients > 0 && blinky.getLinkState() == LinkState.READY;
+        if (poll == polling) {
+            return;
+        }
+        polling = poll;
+        if (poll) {
+            handler.postDelayed(batteryPoll, BATTERY_POLL_INTERVAL_MS);
+        } else {
+            handler.removeCallbacks(batteryPoll);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        blinky.setListener(null);
+        release();
+        super.onCleared();
+    }
+}
@@ -18,6 +18,13 @@ package com.github.rkosegi.blinkycontrol;
 
 import android.os.Bundle;
 import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import com.github.rkosegi.blinky.client.BlinkyDevice;
+import com.github.rkosegi.blinky.client.DeviceInfoDto;
+import com.github.rkosegi.blinky.client.LinkState;
+
+import java.util.Locale;
 
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
@@ -26,6 +33,23 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 public class DeviceInfoActivity extends AppCompatActivity {
+    private BlinkyViewModel model;
+
+    private final BlinkyDevice.Listener blinkyListener = new BlinkyDevice.Listener() {
+        @Override
+        public void onLinkStateChanged(BlinkyDevice device, LinkState state) {
+        }
+
+        @Override
+        public void onDeviceInfoChanged(BlinkyDevice device) {
+            runOnUiThread(DeviceInfoActivity.this::showDeviceInfo);
+        }
+
+        @Override
+        public void onJournalChanged(BlinkyDevice device, int size, long lastFlushLatencyMs) {
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -36,11 +60,46 @@ public class DeviceInfoActivity extends AppCompatActivity {
             v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
             return insets;
         });
-        final DeviceInfoDto dto = (DeviceInfoDto) getIntent().getSerializableExtra("device.info");
-        if (dto == null) {
-            return;
-        }
+        model = BlinkyViewModel.of(this);
+        model.addListener(blinkyListener);
+        showDeviceInfo();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // keeps battery polled while this screen is in front
+        model.clientStarted();
+        model.getDevice().refreshBatteryInfo();
+    }
+
+    @Override
+    protected void onStop() {
+        model.clientStopped();
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        model.removeListener(blinkyListener);
+        super.onDestroy();
+    }
+
+    private void showDeviceInfo() {
+        final DeviceInfoDto dto = model.getDevice().getDeviceInfo();
         ((ProgressBar)findViewById(R.id.battery_level_meter)).setProgress(dto.getBatteryLevel());
         ((ProgressBar)findViewById(R.id.battery_voltage_meter)).setProgress(dto.getBatteryVoltage());
+        ((TextView)findViewById(R.id.label_runtime_estimate)).setText(dto.getRuntimeEstimate() < 0
+                ? getString(R.string.runtime_estimate_unknown)
+                : String.format(getString(R.string.runtime_estimate_label), formatDuration(dto.getRuntimeEstimate()),
+                    formatDuration(dto.getRuntimeEstimateLow()), formatDuration(dto.getRuntimeEstimateHigh())));
+    }
+
+    private static String formatDuration(double ms) {
+        if (Double.isInfinite(ms)) {
+            return "\u221e";
+        }
+        final long minutes = (long) (ms / 60_000);
+        return String.format(Locale.ROOT, "%d:%02d", minutes / 60, minutes % 60);
     }
 }
@@ -0,0 +1,193 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinkycontrol;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.util.Log;
+
+import com.github.rkosegi.blinky.client.LinkState;
+import com.github.rkosegi.blinky.client.Transport;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import androidx.annotation.NonNull;
+
+import static android.bluetooth.BluetoothGatt.GATT_SUCCESS;
+
+/**
+ * {@link Transport} backed by BLE GATT connection.
+ */
+final class GattTransport implements Transport {
+    private static final String TAG = GattTransport.class.getSimpleName();
+    private final Context context;
+    private final BluetoothDevice device;
+    private volatile Listener listener;
+    private BluetoothGatt bluetoothGatt;
+    private List<BluetoothGattService> btServices = List.of();
+
+    @SuppressLint("MissingPermission")
+    private final BluetoothGattCallback bleCb = new BluetoothGattCallback() {
+        // only this variant is called on API < 33, newer ones call it from default implementation of 4-arg variant
+        @Override
+        public void onCharacteristicRead(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic,
+                                         int status) {
+            final Listener l = listener;
+            if (l != null) {
+                l.onReadComplete(characteristic.getService().getUuid(), characteristic.getUuid(),
+                        characteristic.getValue(), status == GATT_SUCCESS);
+            }
+            super.onCharacteristicRead(gatt, characteristic, status);
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            final Listener l = listener;
+            if (l != null) {
+                l.onWriteComplete(characteristic.getService().getUuid(), characteristic.getUuid(),
+                        status == GATT_SUCCESS);
+            }
+            super.onCharacteristicWrite(gatt, characteristic, status);
+        }
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+            Log.i(TAG, "BluetoothGattCallback:onServicesDiscovered(status=" + status + ")");
+            if (status == GATT_SUCCESS) {
+                synchronized (GattTransport.this) {
+                    btServices = gatt.getServices();
+                }
+                notifyLinkState(LinkState.READY);
+            }
+            super.onServicesDiscovered(gatt, status);
+        }
+
+        @Override
+        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+            Log.i(TAG, "onConnectionStateChange(newState=" + newState + ")");
+            switch (newState) {
+                case BluetoothProfile.STATE_CONNECTED:
+                    Log.i(TAG, "Discovering services");
+                    notifyLinkState(LinkState.CONNECTING);
+                    if (!gatt.discoverServices()) {
+                        Log.w(TAG, "onConnectionStateChange: gatt->discoverServices returned false");
+                    }
+                    break;
+                case BluetoothProfile.STATE_DISCONNECTED:
+                    close();
+                    notifyLinkState(LinkState.DISCONNECTED);
+                    break;
+                default:
+                    break;
+            }
+            super.onConnectionStateChange(gatt, status, newState);
+        }
+    };
+
+    GattTransport(@NonNull Context context, @NonNull BluetoothDevice device) {
+        this.context = context;
+        this.device = device;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public synchronized void connect() {
+        close();
+        bluetoothGatt = device.connectGatt(context, false, bleCb);
+        if (!bluetoothGatt.connect()) {
+            Log.w(TAG, "connect: bluetoothGatt->connect returned false");
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public synchronized void close() {
+        btServices = List.of();
+        if (bluetoothGatt != null) {
+            Log.i(TAG, "Closing Gatt");
+            bluetoothGatt.disconnect();
+            bluetoothGatt.close();
+            bluetoothGatt = null;
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public synchronized boolean read(UUID service, UUID characteristic) {
+        return doWithChar("read", service, characteristic, btc -> {
+            if (!bluetoothGatt.readCharacteristic(btc)) {
+                Log.w(TAG, "read: bluetoothGatt->readCharacteristic returned false");
+                return false;
+            }
+            return true;
+        });
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public synchronized boolean write(UUID service, UUID characteristic, byte[] value) {
+        return doWithChar("write", service, characteristic, btc -> {
+            btc.setValue(value);
+            if (!bluetoothGatt.writeCharacteristic(btc)) {
+                Log.w(TAG, "write: bluetoothGatt->writeCharacteristic returned false");
+                return false;
+            }
+            return true;
+        });
+    }
+
+    private boolean doWithChar(@NonNull String action, @NonNull UUID svcUuid, @NonNull UUID charUuid,
+                               @NonNull Predicate<BluetoothGattCharacteristic> op) {
+        if (bluetoothGatt == null) {
+            return false;
+        }
+        final Optional<BluetoothGattService> svc = btServices.stream()
+                .filter(s -> s.getUuid().equals(svcUuid))
+                .findFirst();
+        if (!svc.isPresent()) {
+            Log.w(TAG, action + ": BLE: advertised services does not include " + svcUuid);
+            return false;
+        }
+        final BluetoothGattCharacteristic bleChar = svc.get().getCharacteristic(charUuid);
+        if (bleChar == null) {
+            Log.w(TAG, action + ": BLE: service does not expose characteristic " + charUuid);
+            return false;
+        }
+        return op.test(bleChar);
+    }
+
+    private void notifyLinkState(LinkState state) {
+        final Listener l = listener;
+        if (l != null) {
+            l.onLinkStateChanged(state);
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinkycontrol;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.AttributeSet;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.Switch;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+
+/**
+ * Draws 8 red and 8 orange LEDs on single canvas.
+ * Tap toggles LED, dragging paints subsequent LEDs with same state as the first one touched by given pointer.
+ * Multiple pointers are tracked independently.
+ * For accessibility services, every LED is exposed as virtual, checkable view.
+ */
+public class LedMatrixView extends View {
+    private static final int LEDS_PER_ROW = 8;
+    private static final int ROW_RED = 0;
+    private static final int ROW_ORANGE = 1;
+    private static final int ROWS = 2;
+    private static final int NO_LED = -1;
+    private static final int COLOR_RED_ON = Color.rgb(0xf4, 0x43, 0x36);
+    private static final int COLOR_ORANGE_ON = Color.rgb(0xff, 0x98, 0x00);
+    private static final int COLOR_OFF = Color.rgb(0x61, 0x61, 0x61);
+    private static final int ALPHA_DISABLED = 0x60;
+
+    public interface OnLedChangeListener {
+        void onLedChanged(@NonNull LedMatrixView view, int orangeMask, int redMask);
+    }
+
+    private final Paint redOnPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint orangeOnPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint offPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // pointer id -> state being painted by that pointer
+    private final SparseBooleanArray paintState = new SparseBooleanArray();
+    // pointer id -> last LED index visited by that pointer
+    private final SparseIntArray lastLed = new SparseIntArray();
+    private final int[] masks = new int[ROWS];
+    private final LedAccessibilityHelper accessibilityHelper = new LedAccessibilityHelper();
+    private float cellWidth;
+    private float cellHeight;
+    private float radius;
+    private OnLedChangeListener listener;
+
+    public LedMatrixView(Context context) {
+        this(context, null);
+    }
+
+    public LedMatrixView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public LedMatrixView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        redOnPaint.setColor(COLOR_RED_ON);
+        orangeOnPaint.setColor(COLOR_ORANGE_ON);
+        offPaint.setColor(COLOR_OFF);
+        setClickable(true);
+        ViewCompat.setAccessibilityDelegate(this, accessibilityHelper);
+    }
+
+    public void setOnLedChangeListener(@Nullable OnLedChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Updates displayed state without notifying listener.
+     */
+    public void setMasks(int orangeMask, int redMask) {
+        masks[ROW_ORANGE] = orangeMask & 0xff;
+        masks[ROW_RED] = redMask & 0xff;
+        invalidate();
+        accessibilityHelper.invalidateRoot();
+    }
+
+    @Nullable
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState state = new SavedState(super.onSaveInstanceState());
+        state.orangeMask = masks[ROW_ORANGE];
+        state.redMask = masks[ROW_RED];
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        setMasks(ss.orangeMask, ss.redMask);
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        final int alpha = enabled ? 0xff : ALPHA_DISABLED;
+        redOnPaint.setAlpha(alpha);
+        orangeOnPaint.setAlpha(alpha);
+        offPaint.setAlpha(alpha);
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = MeasureSpec.getSize(widthMeasureSpec);
+        final int desiredHeight = (width - getPaddingLeft() - getPaddingRight()) / LEDS_PER_ROW * ROWS
+                + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(desiredHeight, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        cellWidth = (float) (w - getPaddingLeft() - getPaddingRight()) / LEDS_PER_ROW;
+        cellHeight = (float) (h - getPaddingTop() - getPaddingBottom()) / ROWS;
+        radius = Math.min(cellWidth, cellHeight) * 0.4f;
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        for (int row = 0; row < ROWS; row++) {
+            final Paint onPaint = row == ROW_RED ? redOnPaint : orangeOnPaint;
+            final float cy = getPaddingTop() + cellHeight * (row + 0.5f);
+            for (int bit = 0; bit < LEDS_PER_ROW; bit++) {
+                final float cx = getPaddingLeft() + cellWidth * (bit + 0.5f);
+                canvas.drawCircle(cx, cy, radius, (masks[row] & (1 << bit)) != 0 ? onPaint : offPaint);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!isEnabled()) {
+            return false;
+        }
+        final int index = event.getActionIndex();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                getParent().requestDisallowInterceptTouchEvent(true);
+                onPointerDown(event.getPointerId(index), event.getX(index), event.getY(index));
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                boolean changed = false;
+                for (int i = 0; i < event.getPointerCount(); i++) {
+                    final int pointerId = event.getPointerId(i);
+                    for (int h = 0; h < event.getHistorySize(); h++) {
+                        changed |= paint(pointerId, event.getHistoricalX(i, h), event.getHistoricalY(i, h));
+                    }
+                    changed |= paint(pointerId, event.getX(i), event.getY(i));
+                }
+                if (changed) {
+                    notifyChanged();
+                }
+                return true;
+            case MotionEvent.ACTION_POINTER_UP:
+                forgetPointer(event.getPointerId(index));
+                return true;
+            case MotionEvent.ACTION_UP:
+                forgetPointer(event.getPointerId(index));
+                performClick();
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                paintState.clear();
+                lastLed.clear();
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return accessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return accessibilityHelper.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, @Nullable Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        accessibilityHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    private void onPointerDown(int pointerId, float x, float y) {
+        final int led = ledAt(x, y);
+        if (led == NO_LED) {
+            return;
+        }
+        final boolean newState = !isLit(led);
+        paintState.put(pointerId, newState);
+        lastLed.put(pointerId, led);
+        if (setLed(led, newState)) {
+            notifyChanged();
+        }
+    }
+
+    private boolean paint(int pointerId, float x, float y) {
+        final int led = ledAt(x, y);
+        if (led == NO_LED || lastLed.get(pointerId, NO_LED) == led) {
+            return false;
+        }
+        lastLed.put(pointerId, led);
+        if (paintState.indexOfKey(pointerId) < 0) {
+            // pointer went down outside of any LED, first LED it crosses decides what is painted
+            paintState.put(pointerId, !isLit(led));
+        }
+        return setLed(led, paintState.get(pointerId));
+    }
+
+    private void forgetPointer(int pointerId) {
+        paintState.delete(pointerId);
+        lastLed.delete(pointerId);
+    }
+
+    private int ledAt(float x, float y) {
+        if (cellWidth <= 0 || cellHeight <= 0) {
+            return NO_LED;
+        }
+        final int col = (int) Math.floor((x - getPaddingLeft()) / cellWidth);
+        final int row = (int) Math.floor((y - getPaddingTop()) / cellHeight);
+        if (col < 0 || col >= LEDS_PER_ROW || row < 0 || row >= ROWS) {
+            return NO_LED;
+        }
+        return row * LEDS_PER_ROW + col;
+    }
+
+    private boolean isLit(int led) {
+        return (masks[led / LEDS_PER_ROW] & (1 << (led % LEDS_PER_ROW))) != 0;
+    }
+
+    private boolean setLed(int led, boolean on) {
+        if (isLit(led) == on) {
+            return false;
+        }
+        masks[led / LEDS_PER_ROW] ^= 1 << (led % LEDS_PER_ROW);
+        invalidate();
+        accessibilityHelper.invalidateVirtualView(led);
+        return true;
+    }
+
+    private void ledBounds(int led, Rect out) {
+        final float left = getPaddingLeft() + cellWidth * (led % LEDS_PER_ROW);
+        final float top = getPaddingTop() + cellHeight * (led / LEDS_PER_ROW);
+        out.set((int) left, (int) top, (int) (left + cellWidth), (int) (top + cellHeight));
+    }
+
+    private void notifyChanged() {
+        if (listener != null) {
+            listener.onLedChanged(this, masks[ROW_ORANGE], masks[ROW_RED]);
+        }
+    }
+
+    private class LedAccessibilityHelper extends ExploreByTouchHelper {
+        private final Rect bounds = new Rect();
+
+        LedAccessibilityHelper() {
+            super(LedMatrixView.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            final int led = ledAt(x, y);
+            return led == NO_LED ? INVALID_ID : led;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int led = 0; led < LEDS_PER_ROW * ROWS; led++) {
+                virtualViewIds.add(led);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, @NonNull AccessibilityNodeInfoCompat node) {
+            final int descRes = virtualViewId / LEDS_PER_ROW == ROW_RED
+                    ? R.string.led_red_description : R.string.led_orange_description;
+            node.setContentDescription(getContext().getString(descRes, virtualViewId % LEDS_PER_ROW + 1));
+            node.setClassName(Switch.class.getName());
+            node.setCheckable(true);
+            node.setChecked(isLit(virtualViewId));
+            node.setEnabled(isEnabled());
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            ledBounds(virtualViewId, bounds);
+            node.setBoundsInParent(bounds);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, @Nullable Bundle arguments) {
+            if (action != AccessibilityNodeInfoCompat.ACTION_CLICK || !isEnabled()) {
+                return false;
+            }
+            setLed(virtualViewId, !isLit(virtualViewId));
+            notifyChanged();
+            sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+            return true;
+        }
+    }
+
+    static class SavedState extends BaseSavedState {
+        int orangeMask;
+        int redMask;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            orangeMask = in.readInt();
+            redMask = in.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(orangeMask);
+            out.writeInt(redMask);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+}
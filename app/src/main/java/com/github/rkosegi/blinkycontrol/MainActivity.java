@@ -19,12 +19,7 @@ package com.github.rkosegi.blinkycontrol;
 import android.annotation.SuppressLint;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCallback;
-import android.bluetooth.BluetoothGattCharacteristic;
-import android.bluetooth.BluetoothGattService;
 import android.bluetooth.BluetoothManager;
-import android.bluetooth.BluetoothProfile;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
@@ -34,21 +29,19 @@ import android.util.Log;
 import android.view.View;
 import android.widget.TextView;
 
+import com.github.rkosegi.blinky.client.BlinkyCommands;
+import com.github.rkosegi.blinky.client.BlinkyDevice;
+import com.github.rkosegi.blinky.client.LinkState;
 import com.google.android.material.slider.RangeSlider;
 import com.google.common.base.Strings;
 
-import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
-import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.appcompat.widget.SwitchCompat;
 import androidx.core.app.ActivityCompat;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
@@ -59,88 +52,28 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import static android.Manifest.permission.BLUETOOTH;
 import static android.Manifest.permission.BLUETOOTH_CONNECT;
 import static android.Manifest.permission.BLUETOOTH_SCAN;
-import static android.bluetooth.BluetoothGatt.GATT_SUCCESS;
-import static com.github.rkosegi.blinkycontrol.Constants.BATTERY_LEVEL_CHAR_UUID;
-import static com.github.rkosegi.blinkycontrol.Constants.BATTERY_SERVICE_UUID;
-import static com.github.rkosegi.blinkycontrol.Constants.BATTERY_VOLTAGE_CHAR_UUID;
-import static com.github.rkosegi.blinkycontrol.Constants.DEVICE_INFO_SERVICE_UUID;
-import static com.github.rkosegi.blinkycontrol.Constants.DI_FW_REV_CHAR_UUID;
-import static com.github.rkosegi.blinkycontrol.Constants.DI_MF_NAME_CHAR_UUID;
-import static com.github.rkosegi.blinkycontrol.Constants.LED_BIT_CHAR_UUID;
-import static com.github.rkosegi.blinkycontrol.Constants.LED_DIM_LEVEL_CHAR_UUID;
-import static com.github.rkosegi.blinkycontrol.Constants.LED_MODE_CHAR_UUID;
-import static com.github.rkosegi.blinkycontrol.Constants.LED_SERVICE_UUID;
 
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = MainActivity.class.getSimpleName();
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothGatt bluetoothGatt;
-    private final DeviceInfoDto di = new DeviceInfoDto();
-    private List<BluetoothGattService> btServices = List.of();
+    // LED commands are journaled by device, so they are not lost while link is down.
+    // Device is owned by view model, so it survives configuration changes
+    private BlinkyViewModel model;
+    private BlinkyDevice blinky;
 
-    @SuppressLint("MissingPermission")
-    private final BluetoothGattCallback bleCb = new BluetoothGattCallback() {
+    private final BlinkyDevice.Listener blinkyListener = new BlinkyDevice.Listener() {
         @Override
-        public void onCharacteristicRead(@NonNull BluetoothGatt gatt, @NonNull BluetoothGattCharacteristic characteristic,
-                                         @NonNull byte[] value, int status) {
-            if (status == GATT_SUCCESS) {
-                final byte[] data = characteristic.getValue();
-                final UUID svcUuid = characteristic.getService().getUuid();
-                if (svcUuid.equals(DEVICE_INFO_SERVICE_UUID)){
-                    if (characteristic.getUuid().equals(DI_FW_REV_CHAR_UUID)) {
-                        di.setFwRevision(new String(data, StandardCharsets.US_ASCII));
-                    }
-                    if (characteristic.getUuid().equals(DI_MF_NAME_CHAR_UUID)) {
-                        di.setManufacturerName(new String(data, StandardCharsets.US_ASCII));
-                    }
-                }
-                if (svcUuid.equals(BATTERY_SERVICE_UUID)) {
-                    if (characteristic.getUuid().equals(BATTERY_VOLTAGE_CHAR_UUID)) {
-                        di.setBatteryVoltage((data[1] & 0xff) | (data[0] & 0xff) << 8);
-                    }
-                    if (characteristic.getUuid().equals(BATTERY_LEVEL_CHAR_UUID)) {
-                        di.setBatteryLevel(data[0] & 0xff);
-                    }
-                }
-            }
-            super.onCharacteristicRead(gatt, characteristic, value, status);
+        public void onLinkStateChanged(BlinkyDevice device, LinkState state) {
+            runOnUiThread(() -> enableControls(state == LinkState.READY));
         }
 
         @Override
-        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
-            Log.i(TAG, "BluetoothGattCallback:onServicesDiscovered(status=" + status + ")");
-            if(status == GATT_SUCCESS) {
-                btServices = gatt.getServices();
-                doWithService(BATTERY_SERVICE_UUID, battSvc -> {
-                    doWithChar("getBatteryInfo", battSvc, BATTERY_LEVEL_CHAR_UUID, gatt::readCharacteristic);
-                    doWithChar("getBatteryInfo", battSvc, BATTERY_VOLTAGE_CHAR_UUID, gatt::readCharacteristic);
-                });
-                doWithService(DEVICE_INFO_SERVICE_UUID, svc -> {
-                    doWithChar("getDeviceInfo", svc, DI_FW_REV_CHAR_UUID, gatt::readCharacteristic);
-                    doWithChar("getDeviceInfo", svc, DI_MF_NAME_CHAR_UUID, gatt::readCharacteristic);
-                });
-            }
-            super.onServicesDiscovered(gatt, status);
+        public void onDeviceInfoChanged(BlinkyDevice device) {
         }
 
         @Override
-        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
-            Log.i(TAG, "onConnectionStateChange(newState=" + newState + ")");
-            switch (newState) {
-                case BluetoothProfile.STATE_CONNECTED:
-                    Log.i(TAG, "Discovering services");
-                    if (!gatt.discoverServices()) {
-                        Log.w(TAG, "refreshBluetoothConnection: gatt->discoverServices returned false");
-                    }
-                    break;
-                case BluetoothProfile.STATE_DISCONNECTED:
-                    clearGatt();
-                    break;
-                default:
-                    break;
-            }
-            MainActivity.this.runOnUiThread(() -> enableControls(newState == BluetoothProfile.STATE_CONNECTED));
-            super.onConnectionStateChange(gatt, status, newState);
+        public void onJournalChanged(BlinkyDevice device, int size, long lastFlushLatencyMs) {
+            runOnUiThread(MainActivity.this::updateJournalStatus);
         }
     };
 
@@ -149,95 +82,92 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
+        model = BlinkyViewModel.of(this);
+        blinky = model.getDevice();
+        model.addListener(blinkyListener);
         ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
             Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
             v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
             return insets;
         });
 
-        findViewById(R.id.btn_left).setTag(11);
-        findViewById(R.id.btn_right).setTag(12);
-        findViewById(R.id.btn_stop).setTag(0);
-        findViewById(R.id.btn_red1).setTag(1);
-        findViewById(R.id.btn_red2).setTag(2);
-        findViewById(R.id.btn_red3).setTag(3);
-        findViewById(R.id.btn_red4).setTag(4);
-        findViewById(R.id.btn_red5).setTag(5);
+        findViewById(R.id.btn_left).setTag(BlinkyCommands.MODE_LEFT);
+        findViewById(R.id.btn_right).setTag(BlinkyCommands.MODE_RIGHT);
+        findViewById(R.id.btn_stop).setTag(BlinkyCommands.MODE_STOP);
+        findViewById(R.id.btn_red1).setTag(BlinkyCommands.MODE_RED_1);
+        findViewById(R.id.btn_red2).setTag(BlinkyCommands.MODE_RED_2);
+        findViewById(R.id.btn_red3).setTag(BlinkyCommands.MODE_RED_3);
+        findViewById(R.id.btn_red4).setTag(BlinkyCommands.MODE_RED_4);
+        findViewById(R.id.btn_red5).setTag(BlinkyCommands.MODE_RED_5);
+        final LedMatrixView ledMatrix = findViewById(R.id.led_matrix);
+        ledMatrix.setOnLedChangeListener(this::onLedChanged);
+        if (savedInstanceState == null) {
+            // after process death, journal still holds last commanded LED state
+            ledMatrix.setMasks(blinky.getOrangeMask(), blinky.getRedMask());
+        }
         ((RangeSlider)findViewById(R.id.led_dim_level)).addOnChangeListener((slider, value, fromUser) -> trySetDimLevel(value));
 
-        enableControls(false);
+        enableControls(blinky.getLinkState() == LinkState.READY);
+        updateJournalStatus();
 
         final SwipeRefreshLayout srl = findViewById(R.id.swipe_refresh);
         srl.setOnRefreshListener(this::onRefresh);
     }
 
-    private void writeLedChar(@NonNull String action, @NonNull UUID charUuid, @NonNull byte[] val) {
-        doWithLedChar(action, charUuid, new Consumer<>() {
-            @SuppressLint("MissingPermission")
-            @Override
-            public void accept(BluetoothGattCharacteristic btc) {
-                btc.setValue(val);
-                if (!bluetoothGatt.writeCharacteristic(btc)) {
-                    Log.w(TAG,  action + ": bluetoothGatt->writeCharacteristic returned false");
-                }
-            }
-        });
+    @Override
+    protected void onStart() {
+        super.onStart();
+        model.clientStarted();
     }
 
-    private void doWithService(@NonNull UUID uuid, @NonNull Consumer<BluetoothGattService> consumer) {
-        if (bluetoothGatt != null) {
-            final Optional<BluetoothGattService> svc = btServices.stream()
-                    .filter(s -> s.getUuid().equals(uuid))
-                    .findFirst();
-            if (svc.isPresent()) {
-                consumer.accept(svc.get());
-            } else {
-                Log.w(TAG, "BLE: advertised services does not include "+ uuid);
-            }
-        }
+    @Override
+    protected void onStop() {
+        model.clientStopped();
+        super.onStop();
     }
 
-    private void doWithChar(@NonNull String action, @NonNull BluetoothGattService svc, @NonNull UUID charUuid,
-                            @NonNull Consumer<BluetoothGattCharacteristic> consumer) {
-        final BluetoothGattCharacteristic bleChar = svc.getCharacteristic(charUuid);
-        if (bleChar != null) {
-            consumer.accept(bleChar);
-        } else {
-            Log.w(TAG, action + ": BLE: service does not expose characteristic " + charUuid);
+    @Override
+    protected void onDestroy() {
+        model.removeListener(blinkyListener);
+        // device is detached once activity is finished, not on configuration change
+        if (isFinishing()) {
+            model.release();
         }
+        super.onDestroy();
     }
 
-    private void doWithLedChar(@NonNull String action, @NonNull UUID charUuid,
-                               @NonNull Consumer<BluetoothGattCharacteristic> consumer) {
-        doWithService(LED_SERVICE_UUID, svc -> doWithChar(action, svc, charUuid, consumer));
+    private void updateJournalStatus() {
+        final long latency = blinky.getLastFlushLatency();
+        ((TextView) findViewById(R.id.label_journal)).setText(latency < 0
+                ? String.format(getString(R.string.journal_status_no_flush_label), blinky.getJournalSize())
+                : String.format(getString(R.string.journal_status_label), blinky.getJournalSize(), latency));
     }
 
-    @SuppressLint("MissingPermission")
     private void trySetDimLevel(float level) {
-        int levelInt = (int) level;
-        writeLedChar("setDimLevel", LED_DIM_LEVEL_CHAR_UUID, new byte[]{(byte) (levelInt & 0xff)});
+        blinky.setDimLevel((int) level);
     }
 
     private void onRefresh() {
-        refreshBluetoothConnection();
+        refreshBluetoothConnection(true);
         ((SwipeRefreshLayout) findViewById(R.id.swipe_refresh)).setRefreshing(false);
     }
 
+    @Override
+    protected void onPause() {
+        model.persistJournal();
+        super.onPause();
+    }
+
     @Override
     protected void onPostResume() {
         super.onPostResume();
-        refreshBluetoothConnection();
+        refreshBluetoothConnection(false);
     }
 
     private void enableControls(boolean enable) {
+        // LED controls stay enabled while disconnected, commands are journaled until link becomes ready
         Stream.of(
-                R.id.btn_left, R.id.btn_stop, R.id.btn_right,
-                R.id.btn_red1, R.id.btn_red2, R.id.btn_red3, R.id.btn_red4, R.id.btn_red5,
-                R.id.switch_orange1, R.id.switch_orange2, R.id.switch_orange3, R.id.switch_orange4,
-                R.id.switch_orange5, R.id.switch_orange6, R.id.switch_orange7, R.id.switch_orange8,
-                R.id.switch_red1, R.id.switch_red2, R.id.switch_red3, R.id.switch_red4,
-                R.id.switch_red5, R.id.switch_red6, R.id.switch_red7, R.id.switch_red8,
-                R.id.led_dim_level, R.id.fabInfo
+                R.id.fabInfo
         ).map((Function<Integer, View>) this::findViewById).forEach(view -> view.setEnabled(enable));
     }
 
@@ -273,7 +203,7 @@ public class MainActivity extends AppCompatActivity {
     }
 
     @SuppressLint("MissingPermission")
-    public void refreshBluetoothConnection() {
+    public void refreshBluetoothConnection(boolean force) {
         requestPermissions();
         if (bluetoothAdapter != null) {
             final SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
@@ -289,10 +219,14 @@ public class MainActivity extends AppCompatActivity {
                     Log.e(TAG, "Invalid device address : " + bleAddress, e);
                     return;
                 }
-                clearGatt();
-                bluetoothGatt = device.connectGatt(this.getBaseContext(), false, bleCb);
-                if (bluetoothGatt.connect()) {
-                    Log.w(TAG, "refreshBluetoothConnection: bluetoothGatt->connect returned false");
+                model.connect(device, force);
+                if (model.getDevice() != blinky) {
+                    // other device was configured, show its state instead
+                    blinky = model.getDevice();
+                    ((LedMatrixView) findViewById(R.id.led_matrix)).setMasks(blinky.getOrangeMask(),
+                            blinky.getRedMask());
+                    enableControls(blinky.getLinkState() == LinkState.READY);
+                    updateJournalStatus();
                 }
             } else {
                 Log.w(TAG, "Device is not yet configured");
@@ -306,55 +240,16 @@ public class MainActivity extends AppCompatActivity {
         startActivity(new Intent(this, SettingsActivity.class));
     }
 
-    public void onToggleBit(View view) {
-        int redVal = 0;
-        redVal |= (((SwitchCompat) findViewById(R.id.switch_red1)).isChecked() ? 1 : 0);
-        redVal |= (((SwitchCompat) findViewById(R.id.switch_red2)).isChecked() ? 1 : 0) << 1;
-        redVal |= (((SwitchCompat) findViewById(R.id.switch_red3)).isChecked() ? 1 : 0) << 2;
-        redVal |= (((SwitchCompat) findViewById(R.id.switch_red4)).isChecked() ? 1 : 0) << 3;
-        redVal |= (((SwitchCompat) findViewById(R.id.switch_red5)).isChecked() ? 1 : 0) << 4;
-        redVal |= (((SwitchCompat) findViewById(R.id.switch_red6)).isChecked() ? 1 : 0) << 5;
-        redVal |= (((SwitchCompat) findViewById(R.id.switch_red7)).isChecked() ? 1 : 0) << 6;
-        redVal |= (((SwitchCompat) findViewById(R.id.switch_red8)).isChecked() ? 1 : 0) << 7;
-
-        int oraVal = 0;
-        oraVal |= (((SwitchCompat) findViewById(R.id.switch_orange1)).isChecked() ? 1 : 0);
-        oraVal |= (((SwitchCompat) findViewById(R.id.switch_orange2)).isChecked() ? 1 : 0) << 1;
-        oraVal |= (((SwitchCompat) findViewById(R.id.switch_orange3)).isChecked() ? 1 : 0) << 2;
-        oraVal |= (((SwitchCompat) findViewById(R.id.switch_orange4)).isChecked() ? 1 : 0) << 3;
-        oraVal |= (((SwitchCompat) findViewById(R.id.switch_orange5)).isChecked() ? 1 : 0) << 4;
-        oraVal |= (((SwitchCompat) findViewById(R.id.switch_orange6)).isChecked() ? 1 : 0) << 5;
-        oraVal |= (((SwitchCompat) findViewById(R.id.switch_orange7)).isChecked() ? 1 : 0) << 6;
-        oraVal |= (((SwitchCompat) findViewById(R.id.switch_orange8)).isChecked() ? 1 : 0) << 7;
-
-        Log.i(TAG, "onToggleBit: computed hex values: " + String.format("%02X %02X", oraVal, redVal));
-
-        final byte[] buff = new byte[2];
-        buff[0] = (byte) (oraVal & 0xff);
-        buff[1] = (byte) (redVal & 0xff);
-        writeLedChar("onToggleBit", LED_BIT_CHAR_UUID, buff);
+    private void onLedChanged(@NonNull LedMatrixView view, int orangeMask, int redMask) {
+        blinky.setLeds(orangeMask, redMask);
     }
 
-    @SuppressLint("MissingPermission")
     public void onBlinkModeChange(View view) {
-        int mode = (int) view.getTag();
-        writeLedChar("onBlinkModeChange", LED_MODE_CHAR_UUID, new byte[]{(byte) (mode & 0xff)});
+        blinky.setBlinkMode((int) view.getTag());
     }
 
     public void onDeviceInfo(View view) {
-        final Intent intent = new Intent(this, DeviceInfoActivity.class);
-        intent.putExtra("device.info", di);
+        // device info screen observes same device, so it is updated with every new sample
         startActivity(new Intent(this, DeviceInfoActivity.class));
     }
-
-    @SuppressLint("MissingPermission")
-    private void clearGatt() {
-        btServices = List.of();
-        if (bluetoothGatt != null) {
-            Log.i(TAG, "Closing Gatt");
-            bluetoothGatt.disconnect();
-            bluetoothGatt.close();
-            bluetoothGatt = null;
-        }
-    }
 }
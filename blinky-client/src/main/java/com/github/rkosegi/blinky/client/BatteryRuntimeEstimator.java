@@ -0,0 +1,162 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimates time until battery is empty from stream of (time, value) samples, such as battery level in percent.
+ * <p>
+ * Discharge rate is tracked separately for every LED mode / dim level profile as exponentially weighted,
+ * interval-length weighted mean of per-interval rates. Each sample updates handful of running sums of the active
+ * profile, so cost per sample is O(1) and no history is kept.
+ * Interval during which profile changed is ignored, as it can't be attributed to single profile.
+ * While profile is unknown, samples only track battery value and no profile is updated.
+ * Rise of value above recharge threshold is considered as recharge (or battery swap) and resets all profiles.
+ */
+final class BatteryRuntimeEstimator {
+    // ~95% confidence
+    private static final double Z = 1.96;
+    private static final double MIN_EFFECTIVE_SAMPLES = 2.0;
+    private static final int UNKNOWN_PROFILE = -1;
+
+    static final class Estimate {
+        final double timeToEmptyMs;
+        final double lowMs;
+        final double highMs;
+
+        Estimate(double timeToEmptyMs, double lowMs, double highMs) {
+            this.timeToEmptyMs = timeToEmptyMs;
+            this.lowMs = lowMs;
+            this.highMs = highMs;
+        }
+    }
+
+    private static final class Profile {
+        // decayed sum of interval lengths (weights)
+        double w;
+        // decayed sum of squared weights, for effective sample count
+        double w2;
+        // decayed sum of value drops, i.e. sum of weight * rate
+        double drop;
+        // decayed sum of weight * rate^2
+        double q;
+
+        void add(double dt, double dropped, double tauMs) {
+            final double alpha = Math.exp(-dt / tauMs);
+            w = w * alpha + dt;
+            w2 = w2 * alpha * alpha + dt * dt;
+            drop = drop * alpha + dropped;
+            q = q * alpha + dropped * dropped / dt;
+        }
+    }
+
+    private final double emptyValue;
+    private final double tauMs;
+    private final double rechargeThreshold;
+    private final Map<Integer, Profile> profiles = new HashMap<>();
+    private int profileKey;
+    private boolean profileChanged;
+    private boolean hasSample;
+    private long lastTime;
+    private double lastValue;
+
+    /**
+     * @param emptyValue        value at which battery is considered empty
+     * @param halfLifeMs        how fast older intervals lose their influence
+     * @param rechargeThreshold rise of value that is treated as recharge
+     */
+    BatteryRuntimeEstimator(double emptyValue, long halfLifeMs, double rechargeThreshold) {
+        this.emptyValue = emptyValue;
+        this.tauMs = halfLifeMs / Math.log(2);
+        this.rechargeThreshold = rechargeThreshold;
+    }
+
+    synchronized void setProfile(int ledMode, int dimLevel) {
+        final int key = (ledMode & 0xff) << 8 | (dimLevel & 0xff);
+        if (key != profileKey) {
+            profileKey = key;
+            profileChanged = true;
+        }
+    }
+
+    /**
+     * Marks active profile as unknown, samples are not attributed to any profile until it is set again.
+     */
+    synchronized void clearProfile() {
+        if (profileKey != UNKNOWN_PROFILE) {
+            profileKey = UNKNOWN_PROFILE;
+            profileChanged = true;
+        }
+    }
+
+    synchronized void addSample(long timeMs, double value) {
+        if (hasSample && timeMs > lastTime) {
+            final double dropped = lastValue - value;
+            if (-dropped > rechargeThreshold) {
+                profiles.clear();
+            } else if (!profileChanged && profileKey != UNKNOWN_PROFILE) {
+                Profile profile = profiles.get(profileKey);
+                if (profile == null) {
+                    profile = new Profile();
+                    profiles.put(profileKey, profile);
+                }
+                profile.add(timeMs - lastTime, dropped, tauMs);
+            }
+        } else if (hasSample) {
+            // out of order or duplicate sample
+            return;
+        }
+        profileChanged = false;
+        hasSample = true;
+        lastTime = timeMs;
+        lastValue = value;
+    }
+
+    /**
+     * @return number of tracked profiles, state kept per profile is of fixed size
+     */
+    synchronized int profileCount() {
+        return profiles.size();
+    }
+
+    /**
+     * @return estimate for currently active profile, or null if there is not enough data yet
+     * or battery is not discharging
+     */
+    synchronized Estimate estimate() {
+        final Profile p = profiles.get(profileKey);
+        if (p == null || p.w <= 0) {
+            return null;
+        }
+        final double nEff = p.w * p.w / p.w2;
+        if (nEff < MIN_EFFECTIVE_SAMPLES) {
+            return null;
+        }
+        final double rate = p.drop / p.w;
+        if (rate <= 0) {
+            return null;
+        }
+        final double variance = Math.max(0, p.q / p.w - rate * rate);
+        final double margin = Z * Math.sqrt(variance / nEff);
+        final double remaining = Math.max(0, lastValue - emptyValue);
+        final double low = remaining / (rate + margin);
+        final double high = rate > margin ? remaining / (rate - margin) : Double.POSITIVE_INFINITY;
+        return new Estimate(remaining / rate, low, high);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding of values written to and read from blinky characteristics.
+ */
+public final class BlinkyCommands {
+
+    private BlinkyCommands() {}
+
+    // blink modes
+    public static final int MODE_STOP = 0;
+    public static final int MODE_RED_1 = 1;
+    public static final int MODE_RED_2 = 2;
+    public static final int MODE_RED_3 = 3;
+    public static final int MODE_RED_4 = 4;
+    public static final int MODE_RED_5 = 5;
+    public static final int MODE_LEFT = 11;
+    public static final int MODE_RIGHT = 12;
+
+    public static byte[] ledBits(int orangeMask, int redMask) {
+        return new byte[]{(byte) (orangeMask & 0xff), (byte) (redMask & 0xff)};
+    }
+
+    public static byte[] blinkMode(int mode) {
+        return new byte[]{(byte) (mode & 0xff)};
+    }
+
+    public static byte[] dimLevel(int level) {
+        return new byte[]{(byte) (level & 0xff)};
+    }
+
+    public static int decodeBatteryVoltage(byte[] data) {
+        return (data[1] & 0xff) | (data[0] & 0xff) << 8;
+    }
+
+    public static int decodeBatteryLevel(byte[] data) {
+        return data[0] & 0xff;
+    }
+
+    public static String decodeString(byte[] data) {
+        return new String(data, StandardCharsets.US_ASCII);
+    }
+
+    public static byte[] encodeString(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
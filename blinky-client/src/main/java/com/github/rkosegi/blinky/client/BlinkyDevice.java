@@ -0,0 +1,363 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.github.rkosegi.blinky.client.BlinkyService.BATTERY_LEVEL_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.BATTERY_SERVICE_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.BATTERY_VOLTAGE_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.DEVICE_INFO_SERVICE_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.DI_FW_REV_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.DI_MF_NAME_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_BIT_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_DIM_LEVEL_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_MODE_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_SERVICE_UUID;
+
+/**
+ * State of single blinky device and commands that can be issued to it.
+ * <p>
+ * LED commands are journaled first, so they survive until link becomes ready, then they are flushed
+ * in order together with pending reads, one operation at time.
+ * Methods can be called from any thread, listener is notified from thread that caused the change.
+ */
+public class BlinkyDevice implements Transport.Listener {
+    private static final Logger LOG = Logger.getLogger(BlinkyDevice.class.getName());
+    private static final long BATTERY_ESTIMATE_HALF_LIFE_MS = 2 * 3_600_000L;
+    private static final double BATTERY_RECHARGE_THRESHOLD = 5;
+
+    public interface Listener {
+        void onLinkStateChanged(BlinkyDevice device, LinkState state);
+
+        void onDeviceInfoChanged(BlinkyDevice device);
+
+        void onJournalChanged(BlinkyDevice device, int size, long lastFlushLatencyMs);
+    }
+
+    private final CommandJournal journal;
+    private final OperationQueue queue;
+    private final LongSupplier clock;
+    // fed with battery level only: it is state of charge already linearized by firmware, while voltage
+    // is flat and non-linear over most of Li-ion discharge and its empty value depends on the cell
+    private final BatteryRuntimeEstimator batteryEstimator = new BatteryRuntimeEstimator(0,
+            BATTERY_ESTIMATE_HALF_LIFE_MS, BATTERY_RECHARGE_THRESHOLD);
+    private final DeviceInfoDto di = new DeviceInfoDto();
+    private Transport transport;
+    private volatile Listener listener;
+    private LinkState state = LinkState.DISCONNECTED;
+    private int orangeMask;
+    private int redMask;
+    // -1 until known from journal, device or command; battery samples are not attributed to any profile till then
+    private int ledMode = -1;
+    private int dimLevel = -1;
+    private int flushBatchSize;
+    private long flushStartedAt = -1;
+    private long lastFlushLatency = -1;
+
+    /**
+     * @param journal journal of LED commands, possibly restored from previous run
+     * @param clock   monotonic clock in milliseconds
+     */
+    public BlinkyDevice(CommandJournal journal, LongSupplier clock) {
+        this.journal = journal;
+        this.queue = new OperationQueue(journal);
+        this.clock = clock;
+        final byte[] ledBits = journal.get(LED_BIT_CHAR_UUID);
+        if (ledBits != null && ledBits.length == 2) {
+            orangeMask = ledBits[0] & 0xff;
+            redMask = ledBits[1] & 0xff;
+        }
+        ledMode = journaledByte(LED_MODE_CHAR_UUID);
+        dimLevel = journaledByte(LED_DIM_LEVEL_CHAR_UUID);
+        updateBatteryProfile();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Replaces current transport, if any, and starts connecting.
+     */
+    public void attach(Transport transport) {
+        detach();
+        synchronized (this) {
+            this.transport = transport;
+        }
+        transport.setListener(this);
+        transport.connect();
+    }
+
+    public void detach() {
+        final Transport t;
+        synchronized (this) {
+            t = transport;
+            transport = null;
+        }
+        if (t != null) {
+            t.setListener(null);
+            t.close();
+            onLinkStateChanged(LinkState.DISCONNECTED);
+        }
+    }
+
+    public void setLeds(int orangeMask, int redMask) {
+        synchronized (this) {
+            this.orangeMask = orangeMask & 0xff;
+            this.redMask = redMask & 0xff;
+        }
+        submit(LED_BIT_CHAR_UUID, BlinkyCommands.ledBits(orangeMask, redMask));
+    }
+
+    public void setBlinkMode(int mode) {
+        synchronized (this) {
+            ledMode = mode & 0xff;
+            updateBatteryProfile();
+        }
+        submit(LED_MODE_CHAR_UUID, BlinkyCommands.blinkMode(mode));
+    }
+
+    public void setDimLevel(int level) {
+        synchronized (this) {
+            dimLevel = level & 0xff;
+            updateBatteryProfile();
+        }
+        submit(LED_DIM_LEVEL_CHAR_UUID, BlinkyCommands.dimLevel(level));
+    }
+
+    public void refreshBatteryInfo() {
+        queue.enqueueRead(BATTERY_SERVICE_UUID, BATTERY_LEVEL_CHAR_UUID);
+        queue.enqueueRead(BATTERY_SERVICE_UUID, BATTERY_VOLTAGE_CHAR_UUID);
+        pump();
+    }
+
+    /**
+     * @return last commanded orange LED mask, possibly restored from journal
+     */
+    public synchronized int getOrangeMask() {
+        return orangeMask;
+    }
+
+    /**
+     * @return last commanded red LED mask, possibly restored from journal
+     */
+    public synchronized int getRedMask() {
+        return redMask;
+    }
+
+    public synchronized LinkState getLinkState() {
+        return state;
+    }
+
+    public int getJournalSize() {
+        return journal.size();
+    }
+
+    public synchronized long getLastFlushLatency() {
+        return lastFlushLatency;
+    }
+
+    /**
+     * @return true if there is nothing pending nor in flight
+     */
+    public boolean isIdle() {
+        return queue.isIdle();
+    }
+
+    /**
+     * @return snapshot of device info, including battery runtime estimate
+     */
+    public synchronized DeviceInfoDto getDeviceInfo() {
+        final DeviceInfoDto copy = new DeviceInfoDto();
+        copy.setBatteryLevel(di.getBatteryLevel());
+        copy.setBatteryVoltage(di.getBatteryVoltage());
+        copy.setFwRevision(di.getFwRevision());
+        copy.setManufacturerName(di.getManufacturerName());
+        final BatteryRuntimeEstimator.Estimate estimate = batteryEstimator.estimate();
+        if (estimate != null) {
+            copy.setRuntimeEstimate(estimate.timeToEmptyMs, estimate.lowMs, estimate.highMs);
+        }
+        return copy;
+    }
+
+    @Override
+    public void onLinkStateChanged(LinkState newState) {
+        synchronized (this) {
+            if (state == newState) {
+                return;
+            }
+            LOG.info("onLinkStateChanged(" + state + " -> " + newState + ")");
+            state = newState;
+            if (newState != LinkState.READY) {
+                queue.abort();
+                flushStartedAt = -1;
+            }
+        }
+        notifyLinkState(newState);
+        if (newState == LinkState.READY) {
+            queue.enqueueRead(DEVICE_INFO_SERVICE_UUID, DI_FW_REV_CHAR_UUID);
+            queue.enqueueRead(DEVICE_INFO_SERVICE_UUID, DI_MF_NAME_CHAR_UUID);
+            // active battery profile, read before battery so that first sample is attributed to it
+            queue.enqueueRead(LED_SERVICE_UUID, LED_MODE_CHAR_UUID);
+            queue.enqueueRead(LED_SERVICE_UUID, LED_DIM_LEVEL_CHAR_UUID);
+            refreshBatteryInfo();
+        }
+    }
+
+    @Override
+    public void onReadComplete(UUID service, UUID characteristic, byte[] value, boolean success) {
+        if (queue.complete(Operation.Type.READ, service, characteristic, success) == null) {
+            LOG.warning("onReadComplete: unexpected completion of " + characteristic);
+        } else if (success && value != null) {
+            synchronized (this) {
+                if (characteristic.equals(DI_FW_REV_CHAR_UUID)) {
+                    di.setFwRevision(BlinkyCommands.decodeString(value));
+                } else if (characteristic.equals(DI_MF_NAME_CHAR_UUID)) {
+                    di.setManufacturerName(BlinkyCommands.decodeString(value));
+                } else if (characteristic.equals(LED_MODE_CHAR_UUID)) {
+                    // pending command is newer than what device reports
+                    if (journal.get(LED_MODE_CHAR_UUID) == null && value.length > 0) {
+                        ledMode = value[0] & 0xff;
+                        updateBatteryProfile();
+                    }
+                } else if (characteristic.equals(LED_DIM_LEVEL_CHAR_UUID)) {
+                    if (journal.get(LED_DIM_LEVEL_CHAR_UUID) == null && value.length > 0) {
+                        dimLevel = value[0] & 0xff;
+                        updateBatteryProfile();
+                    }
+                } else if (characteristic.equals(BATTERY_VOLTAGE_CHAR_UUID)) {
+                    di.setBatteryVoltage(BlinkyCommands.decodeBatteryVoltage(value));
+                } else if (characteristic.equals(BATTERY_LEVEL_CHAR_UUID)) {
+                    di.setBatteryLevel(BlinkyCommands.decodeBatteryLevel(value));
+                    batteryEstimator.addSample(clock.getAsLong(), di.getBatteryLevel());
+                }
+            }
+            notifyDeviceInfo();
+        } else {
+            LOG.warning("onReadComplete: read of " + characteristic + " failed");
+        }
+        pump();
+    }
+
+    @Override
+    public void onWriteComplete(UUID service, UUID characteristic, boolean success) {
+        final Operation op = queue.complete(Operation.Type.WRITE, service, characteristic, success);
+        if (op == null) {
+            LOG.warning("onWriteComplete: unexpected completion of " + characteristic);
+        } else if (!success) {
+            if (journal.get(characteristic) == op.value) {
+                LOG.warning("onWriteComplete: write of " + characteristic + " failed, will retry");
+            } else {
+                LOG.warning("onWriteComplete: write of " + characteristic + " failed "
+                        + OperationQueue.MAX_WRITE_ATTEMPTS + " times, dropping command");
+            }
+        }
+        pump();
+    }
+
+    private int journaledByte(UUID characteristic) {
+        final byte[] value = journal.get(characteristic);
+        return value != null && value.length > 0 ? value[0] & 0xff : -1;
+    }
+
+    // caller holds lock
+    private void updateBatteryProfile() {
+        if (ledMode < 0 || dimLevel < 0) {
+            batteryEstimator.clearProfile();
+        } else {
+            batteryEstimator.setProfile(ledMode, dimLevel);
+        }
+    }
+
+    private void submit(UUID charUuid, byte[] value) {
+        journal.append(charUuid, value);
+        notifyJournal();
+        pump();
+    }
+
+    private void pump() {
+        final Transport t;
+        final Operation op;
+        boolean flushed = false;
+        synchronized (this) {
+            if (state != LinkState.READY || transport == null) {
+                return;
+            }
+            t = transport;
+            if (flushStartedAt < 0 && journal.size() > 0) {
+                flushStartedAt = clock.getAsLong();
+                flushBatchSize = journal.size();
+            } else if (flushStartedAt >= 0 && journal.size() == 0) {
+                lastFlushLatency = clock.getAsLong() - flushStartedAt;
+                flushStartedAt = -1;
+                flushed = true;
+                LOG.log(Level.FINE, "pump: {0} command(s) flushed in {1} ms",
+                        new Object[]{flushBatchSize, lastFlushLatency});
+            }
+            op = queue.poll();
+        }
+        if (flushed) {
+            notifyJournal();
+        }
+        Operation next = op;
+        while (next != null && !issue(t, next)) {
+            // journaled write is retried on next completion, command or reconnect
+            LOG.warning("pump: " + next.type + " of " + next.characteristic + " could not be issued");
+            if (queue.release(next)) {
+                LOG.warning("pump: write of " + next.characteristic + " refused "
+                        + OperationQueue.MAX_WRITE_ATTEMPTS + " times, dropping command");
+                notifyJournal();
+                // move on to next journaled command right away
+                next = queue.poll();
+            } else {
+                // let pending read through instead, its completion retries rejected write
+                next = next.type == Operation.Type.WRITE ? queue.pollRead() : null;
+            }
+        }
+    }
+
+    private static boolean issue(Transport t, Operation op) {
+        return op.type == Operation.Type.WRITE
+                ? t.write(op.service, op.characteristic, op.value)
+                : t.read(op.service, op.characteristic);
+    }
+
+    private void notifyLinkState(LinkState newState) {
+        final Listener l = listener;
+        if (l != null) {
+            l.onLinkStateChanged(this, newState);
+        }
+    }
+
+    private void notifyDeviceInfo() {
+        final Listener l = listener;
+        if (l != null) {
+            l.onDeviceInfoChanged(this);
+        }
+    }
+
+    private void notifyJournal() {
+        final Listener l = listener;
+        if (l != null) {
+            l.onJournalChanged(this, journal.size(), getLastFlushLatency());
+        }
+    }
+}
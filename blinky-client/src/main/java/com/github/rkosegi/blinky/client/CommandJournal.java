@@ -0,0 +1,107 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ordered journal of characteristic writes that were not yet acknowledged by device.
+ * Only the latest value is kept per characteristic, re-appended value moves to the end of journal.
+ * Every modification is handed over to {@link Persister}, so journal can be restored after process death.
+ */
+public final class CommandJournal {
+    public interface Persister {
+        void persist(String encoded);
+    }
+
+    private final Map<UUID, byte[]> entries = new LinkedHashMap<>();
+    private final Persister persister;
+
+    public CommandJournal(String encoded, Persister persister) {
+        this.persister = persister;
+        decode(encoded, entries);
+    }
+
+    synchronized void append(UUID charUuid, byte[] value) {
+        entries.remove(charUuid);
+        entries.put(charUuid, value);
+        persister.persist(encode(entries));
+    }
+
+    /**
+     * Removes entry, but only if it was not superseded by newer value in the meantime.
+     */
+    synchronized void acknowledge(UUID charUuid, byte[] value) {
+        if (entries.get(charUuid) == value) {
+            entries.remove(charUuid);
+            persister.persist(encode(entries));
+        }
+    }
+
+    synchronized byte[] get(UUID charUuid) {
+        return entries.get(charUuid);
+    }
+
+    synchronized Map.Entry<UUID, byte[]> head() {
+        final Iterator<Map.Entry<UUID, byte[]>> it = entries.entrySet().iterator();
+        return it.hasNext() ? new AbstractMap.SimpleImmutableEntry<>(it.next()) : null;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    static String encode(Map<UUID, byte[]> entries) {
+        final StringBuilder sb = new StringBuilder();
+        for (Map.Entry<UUID, byte[]> e : entries.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(e.getKey()).append('=');
+            for (byte b : e.getValue()) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+        }
+        return sb.toString();
+    }
+
+    static void decode(String encoded, Map<UUID, byte[]> target) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        for (String item : encoded.split(",")) {
+            final int sep = item.indexOf('=');
+            if (sep < 0) {
+                continue;
+            }
+            final String hex = item.substring(sep + 1);
+            final byte[] value = new byte[hex.length() / 2];
+            try {
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+                }
+                target.put(UUID.fromString(item.substring(0, sep)), value);
+            } catch (IllegalArgumentException e) {
+                // corrupted entry, skip it
+            }
+        }
+    }
+}
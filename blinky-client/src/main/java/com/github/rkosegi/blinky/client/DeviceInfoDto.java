@@ -14,7 +14,7 @@ See the License for the specific language governing permissions and
 limitations under the License.
 */
 
-package com.github.rkosegi.blinkycontrol;
+package com.github.rkosegi.blinky.client;
 
 import java.io.Serializable;
 
@@ -23,6 +23,10 @@ public class DeviceInfoDto implements Serializable {
     private int batteryVoltage;
     private String fwRevision;
     private String manufacturerName;
+    // estimated time to empty battery and its confidence band in ms, negative if unknown
+    private double runtimeEstimate = -1;
+    private double runtimeEstimateLow = -1;
+    private double runtimeEstimateHigh = -1;
 
     public int getBatteryLevel() {
         return batteryLevel;
@@ -55,4 +59,22 @@ public class DeviceInfoDto implements Serializable {
     public void setBatteryVoltage(int batteryVoltage) {
         this.batteryVoltage = batteryVoltage;
     }
+
+    public double getRuntimeEstimate() {
+        return runtimeEstimate;
+    }
+
+    public double getRuntimeEstimateLow() {
+        return runtimeEstimateLow;
+    }
+
+    public double getRuntimeEstimateHigh() {
+        return runtimeEstimateHigh;
+    }
+
+    public void setRuntimeEstimate(double estimate, double low, double high) {
+        this.runtimeEstimate = estimate;
+        this.runtimeEstimateLow = low;
+        this.runtimeEstimateHigh = high;
+    }
 }
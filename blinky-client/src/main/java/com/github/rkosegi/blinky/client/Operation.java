@@ -0,0 +1,50 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import java.util.UUID;
+
+final class Operation {
+    enum Type {
+        READ,
+        WRITE,
+    }
+
+    final Type type;
+    final UUID service;
+    final UUID characteristic;
+    final byte[] value;
+
+    private Operation(Type type, UUID service, UUID characteristic, byte[] value) {
+        this.type = type;
+        this.service = service;
+        this.characteristic = characteristic;
+        this.value = value;
+    }
+
+    static Operation read(UUID service, UUID characteristic) {
+        return new Operation(Type.READ, service, characteristic, null);
+    }
+
+    static Operation write(UUID service, UUID characteristic, byte[] value) {
+        return new Operation(Type.WRITE, service, characteristic, value);
+    }
+
+    boolean matches(Type type, UUID service, UUID characteristic) {
+        return this.type == type && this.service.equals(service) && this.characteristic.equals(characteristic);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_SERVICE_UUID;
+
+/**
+ * Serializes operations on single transport, so that at most one of them is in flight.
+ * Journaled LED writes take precedence over reads, but one pending read is let through after each write,
+ * so that continuous stream of commands does not starve reads. Reads of same characteristic are not queued twice.
+ */
+final class OperationQueue {
+    // failed or refused attempts of same journaled value, before it is given up
+    static final int MAX_WRITE_ATTEMPTS = 3;
+    private final CommandJournal journal;
+    private final Deque<Operation> reads = new ArrayDeque<>();
+    private Operation inFlight;
+    private boolean lastWasWrite;
+    private byte[] failedValue;
+    private int failedAttempts;
+
+    OperationQueue(CommandJournal journal) {
+        this.journal = journal;
+    }
+
+    synchronized void enqueueRead(UUID service, UUID characteristic) {
+        for (Operation op : reads) {
+            if (op.matches(Operation.Type.READ, service, characteristic)) {
+                return;
+            }
+        }
+        reads.add(Operation.read(service, characteristic));
+    }
+
+    /**
+     * @return next operation to issue, or null if there is nothing to do or other operation is in flight
+     */
+    synchronized Operation poll() {
+        if (inFlight != null) {
+            return null;
+        }
+        final Map.Entry<UUID, byte[]> head = journal.head();
+        if (head != null && !(lastWasWrite && !reads.isEmpty())) {
+            inFlight = Operation.write(LED_SERVICE_UUID, head.getKey(), head.getValue());
+        } else {
+            inFlight = reads.poll();
+        }
+        if (inFlight != null) {
+            lastWasWrite = inFlight.type == Operation.Type.WRITE;
+        }
+        return inFlight;
+    }
+
+    /**
+     * @return next pending read, or null if there is none or other operation is in flight
+     */
+    synchronized Operation pollRead() {
+        if (inFlight != null) {
+            return null;
+        }
+        inFlight = reads.poll();
+        if (inFlight != null) {
+            lastWasWrite = false;
+        }
+        return inFlight;
+    }
+
+    /**
+     * Marks in flight operation as completed. Failed write stays in journal to be retried,
+     * unless it failed {@link #MAX_WRITE_ATTEMPTS} times in row, see {@link #attemptFailed(Operation)}.
+     *
+     * @return completed operation, or null if completion does not match in flight operation
+     */
+    synchronized Operation complete(Operation.Type type, UUID service, UUID characteristic, boolean success) {
+        if (inFlight == null || !inFlight.matches(type, service, characteristic)) {
+            return null;
+        }
+        final Operation op = inFlight;
+        inFlight = null;
+        if (op.type == Operation.Type.WRITE) {
+            if (success) {
+                journal.acknowledge(op.characteristic, op.value);
+                failedValue = null;
+            } else {
+                attemptFailed(op);
+            }
+        }
+        return op;
+    }
+
+    /**
+     * Releases operation that could not be issued. Journaled write stays in journal and is retried later,
+     * unless it was refused {@link #MAX_WRITE_ATTEMPTS} times in row, so that write of e.g. characteristic
+     * which device does not have can't block other commands forever.
+     * Read is dropped, as it could not be issued ever again, e.g. when characteristic does not exist.
+     *
+     * @return true if write was given up and removed from journal
+     */
+    synchronized boolean release(Operation op) {
+        if (inFlight != op) {
+            return false;
+        }
+        inFlight = null;
+        return op.type == Operation.Type.WRITE && attemptFailed(op);
+    }
+
+    // counts failed attempt of journaled write, gives it up once limit is reached
+    private boolean attemptFailed(Operation op) {
+        failedAttempts = failedValue == op.value ? failedAttempts + 1 : 1;
+        failedValue = op.value;
+        if (failedAttempts < MAX_WRITE_ATTEMPTS) {
+            return false;
+        }
+        journal.acknowledge(op.characteristic, op.value);
+        failedValue = null;
+        return true;
+    }
+
+    /**
+     * Forgets in flight operation and pending reads, journaled writes are kept.
+     */
+    synchronized void abort() {
+        inFlight = null;
+        reads.clear();
+    }
+
+    synchronized boolean isIdle() {
+        return inFlight == null && reads.isEmpty() && journal.size() == 0;
+    }
+}
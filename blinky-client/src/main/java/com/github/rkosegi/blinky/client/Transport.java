@@ -0,0 +1,50 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import java.util.UUID;
+
+/**
+ * Link to single blinky device, such as BLE GATT connection.
+ * Only one read or write is issued at time, completion is reported through {@link Listener},
+ * possibly from different thread.
+ */
+public interface Transport {
+    interface Listener {
+        void onLinkStateChanged(LinkState state);
+
+        void onReadComplete(UUID service, UUID characteristic, byte[] value, boolean success);
+
+        void onWriteComplete(UUID service, UUID characteristic, boolean success);
+    }
+
+    void setListener(Listener listener);
+
+    void connect();
+
+    void close();
+
+    /**
+     * @return false if operation could not be issued, e.g. because link is busy or characteristic does not exist
+     */
+    boolean read(UUID service, UUID characteristic);
+
+    /**
+     * @return false if operation could not be issued, e.g. because link is busy or characteristic does not exist
+     */
+    boolean write(UUID service, UUID characteristic, byte[] value);
+}
@@ -0,0 +1,58 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.github.rkosegi.blinky.client;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Rough per-sample cost of estimator update, cost should not grow with number of samples already seen.
+ * That is asserted deterministically by {@link BatteryRuntimeEstimatorTest}, timings here are just logged.
+ */
+@Category(Benchmark.class)
+public class BatteryRuntimeEstimatorBenchmark {
+    private static final Logger LOG = Logger.getLogger(BatteryRuntimeEstimatorBenchmark.class.getName());
+    private static final int WARMUP = 200_000;
+    private static final int SAMPLES = 1_000_000;
+
+    @Test
+    public void addSample() {
+        for (int samples = SAMPLES; samples <= 10 * SAMPLES; samples *= 10) {
+            LOG.log(Level.INFO, "addSample: {0} ns/sample ({1} samples)",
+                    new Object[]{String.format("%.1f", nanosPerSample(samples)), samples});
+        }
+    }
+
+    private static double nanosPerSample(int samples) {
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(0, 3_600_000L, 5);
+        for (int i = 0; i < WARMUP; i++) {
+            estimator.addSample(i, 100 - i * 1e-6);
+        }
+        final long start = System.nanoTime();
+        for (int i = WARMUP; i < WARMUP + samples; i++) {
+            estimator.setProfile(i / 1000 % 4, 50);
+            estimator.addSample(i, 100 - i * 1e-6);
+        }
+        final long elapsed = System.nanoTime() - start;
+        assertNotNull(estimator.estimate());
+        return (double) elapsed / samples;
+    }
+}
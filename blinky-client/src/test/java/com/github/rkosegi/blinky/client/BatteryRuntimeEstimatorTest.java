@@ -0,0 +1,165 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BatteryRuntimeEstimatorTest {
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    public void estimate_isNullWithoutData() {
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(0, HOUR, 5);
+        assertNull(estimator.estimate());
+        estimator.addSample(0, 100);
+        assertNull(estimator.estimate());
+    }
+
+    @Test
+    public void quantizedLinearDischarge() {
+        // 100% -> 0% in 10 hours, reported in whole percent every minute
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(0, 2 * HOUR, 5);
+        long t = 0;
+        for (; t <= 3 * HOUR; t += MINUTE) {
+            estimator.addSample(t, Math.ceil(100 - t * 10.0 / HOUR));
+        }
+        final BatteryRuntimeEstimator.Estimate e = estimator.estimate();
+        assertNotNull(e);
+        final double truth = 7 * HOUR;
+        assertEquals(truth, e.timeToEmptyMs, truth * 0.05);
+        assertTrue(e.lowMs <= truth && truth <= e.highMs);
+    }
+
+    @Test
+    public void noisyVoltageDischarge() {
+        // 4100 mV -> 3300 mV in 8 hours with 5 mV of measurement noise
+        final Random rnd = new Random(42);
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(3300, 2 * HOUR, 100);
+        for (long t = 0; t <= 4 * HOUR; t += MINUTE) {
+            estimator.addSample(t, 4100 - t * 100.0 / HOUR + rnd.nextGaussian() * 5);
+        }
+        final BatteryRuntimeEstimator.Estimate e = estimator.estimate();
+        assertNotNull(e);
+        final double truth = 4 * HOUR;
+        assertEquals(truth, e.timeToEmptyMs, truth * 0.1);
+        assertTrue(e.lowMs <= e.timeToEmptyMs && e.timeToEmptyMs <= e.highMs);
+    }
+
+    @Test
+    public void profilesAreTrackedSeparately() {
+        // profile A drains 10%/h, profile B 20%/h, switching every 30 minutes
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(0, 2 * HOUR, 5);
+        double level = 100;
+        for (long t = 0; t <= 4 * HOUR; t += MINUTE) {
+            final boolean profileA = (t / (30 * MINUTE)) % 2 == 0;
+            estimator.setProfile(profileA ? 11 : 12, 50);
+            estimator.addSample(t, level);
+            level -= (profileA ? 10.0 : 20.0) / 60;
+        }
+        estimator.setProfile(11, 50);
+        final BatteryRuntimeEstimator.Estimate a = estimator.estimate();
+        estimator.setProfile(12, 50);
+        final BatteryRuntimeEstimator.Estimate b = estimator.estimate();
+        assertNotNull(a);
+        assertNotNull(b);
+        assertEquals(a.timeToEmptyMs / 2, b.timeToEmptyMs, b.timeToEmptyMs * 0.02);
+        assertEquals(level / 10 * HOUR, a.timeToEmptyMs, a.timeToEmptyMs * 0.02);
+        assertNull("no data for this profile yet", profileEstimate(estimator, 0, 0));
+    }
+
+    @Test
+    public void adaptsToChangingDischargeRate() {
+        // rate doubles after 2 hours, e.g. as battery gets closer to its knee
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(0, HOUR, 5);
+        double level = 100;
+        for (long t = 0; t <= 6 * HOUR; t += MINUTE) {
+            estimator.addSample(t, level);
+            level -= (t < 2 * HOUR ? 5.0 : 10.0) / 60;
+        }
+        final BatteryRuntimeEstimator.Estimate e = estimator.estimate();
+        assertNotNull(e);
+        final double truth = (level + 10.0 / 60) / 10 * HOUR;
+        assertEquals(truth, e.timeToEmptyMs, truth * 0.05);
+    }
+
+    @Test
+    public void rechargeResetsHistory() {
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(0, HOUR, 5);
+        for (long t = 0; t <= HOUR; t += MINUTE) {
+            estimator.addSample(t, 100 - t * 10.0 / HOUR);
+        }
+        assertNotNull(estimator.estimate());
+        estimator.addSample(HOUR + MINUTE, 100);
+        assertNull(estimator.estimate());
+    }
+
+    @Test
+    public void nonDischargingBattery_hasNoEstimate() {
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(0, HOUR, 5);
+        for (long t = 0; t <= HOUR; t += MINUTE) {
+            estimator.addSample(t, 80);
+        }
+        assertNull(estimator.estimate());
+    }
+
+    @Test
+    public void unknownProfile_isNotUpdated() {
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(0, HOUR, 5);
+        estimator.clearProfile();
+        for (long t = 0; t <= HOUR; t += MINUTE) {
+            estimator.addSample(t, 100 - t / MINUTE);
+        }
+        assertEquals(0, estimator.profileCount());
+        assertNull(estimator.estimate());
+        assertNull(profileEstimate(estimator, 0, 0));
+    }
+
+    @Test
+    public void state_doesNotGrowWithSamples() {
+        final BatteryRuntimeEstimator estimator = new BatteryRuntimeEstimator(0, HOUR, 5);
+        for (int i = 0; i < 100_000; i++) {
+            estimator.setProfile(i / 100 % 4, 50);
+            estimator.addSample(i * MINUTE, 100 - i * 1e-4);
+        }
+        assertEquals(4, estimator.profileCount());
+        assertNotNull(estimator.estimate());
+        // profile is bunch of running sums, no history
+        for (Class<?> cls : BatteryRuntimeEstimator.class.getDeclaredClasses()) {
+            if (!cls.getSimpleName().equals("Profile")) {
+                continue;
+            }
+            for (Field field : cls.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    assertTrue(field.getName(), field.getType().isPrimitive());
+                }
+            }
+        }
+    }
+
+    private static BatteryRuntimeEstimator.Estimate profileEstimate(BatteryRuntimeEstimator estimator,
+                                                                    int mode, int dim) {
+        estimator.setProfile(mode, dim);
+        return estimator.estimate();
+    }
+}
@@ -0,0 +1,255 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.rkosegi.blinky.client.BlinkyService.BATTERY_LEVEL_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.BATTERY_VOLTAGE_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.DI_FW_REV_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.DI_MF_NAME_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_BIT_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_DIM_LEVEL_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_MODE_CHAR_UUID;
+import static org.junit.Assert.*;
+
+public class BlinkyDeviceTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void commandsWhileDisconnected_areFlushedInOrderOnReady() {
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), clock::get);
+        device.setBlinkMode(BlinkyCommands.MODE_LEFT);
+        device.setLeds(1, 0);
+        device.setLeds(3, 0x80);
+        device.setDimLevel(50);
+        assertEquals(3, device.getJournalSize());
+
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run);
+        device.attach(transport);
+
+        assertEquals(List.of(LED_MODE_CHAR_UUID, LED_BIT_CHAR_UUID, LED_DIM_LEVEL_CHAR_UUID), transport.writeLog());
+        assertArrayEquals(BlinkyCommands.ledBits(3, 0x80), transport.value(LED_BIT_CHAR_UUID));
+        assertArrayEquals(BlinkyCommands.blinkMode(BlinkyCommands.MODE_LEFT), transport.value(LED_MODE_CHAR_UUID));
+        assertEquals(0, device.getJournalSize());
+        assertEquals(0, device.getLastFlushLatency());
+        assertTrue(device.isIdle());
+    }
+
+    @Test
+    public void journal_survivesRestart() {
+        final AtomicReference<String> store = new AtomicReference<>();
+        new BlinkyDevice(new CommandJournal(null, store::set), clock::get).setLeds(0xff, 0x0f);
+
+        final BlinkyDevice restarted = new BlinkyDevice(new CommandJournal(store.get(), store::set), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run);
+        restarted.attach(transport);
+
+        assertArrayEquals(BlinkyCommands.ledBits(0xff, 0x0f), transport.value(LED_BIT_CHAR_UUID));
+        assertEquals("", store.get());
+    }
+
+    @Test
+    public void ledMasks_areRestoredFromJournal() {
+        final AtomicReference<String> store = new AtomicReference<>();
+        new BlinkyDevice(new CommandJournal(null, store::set), clock::get).setLeds(0x81, 0x42);
+
+        final BlinkyDevice restarted = new BlinkyDevice(new CommandJournal(store.get(), store::set), clock::get);
+        assertEquals(0x81, restarted.getOrangeMask());
+        assertEquals(0x42, restarted.getRedMask());
+    }
+
+    @Test
+    public void commandsAfterLinkDrop_areKeptUntilReconnect() {
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run);
+        device.attach(transport);
+        transport.dropLink();
+        assertEquals(LinkState.DISCONNECTED, device.getLinkState());
+
+        device.setLeds(5, 5);
+        assertNull(transport.value(LED_BIT_CHAR_UUID));
+        assertEquals(1, device.getJournalSize());
+
+        transport.connect();
+        assertEquals(LinkState.READY, device.getLinkState());
+        assertArrayEquals(BlinkyCommands.ledBits(5, 5), transport.value(LED_BIT_CHAR_UUID));
+        assertEquals(0, device.getJournalSize());
+    }
+
+    @Test
+    public void failedWrite_isRetried() {
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run);
+        transport.failWrites(OperationQueue.MAX_WRITE_ATTEMPTS - 1);
+        device.setLeds(0x0f, 0xf0);
+        device.attach(transport);
+
+        assertArrayEquals(BlinkyCommands.ledBits(0x0f, 0xf0), transport.value(LED_BIT_CHAR_UUID));
+        assertEquals(0, device.getJournalSize());
+    }
+
+    @Test
+    public void repeatedlyFailingWrite_isGivenUp() {
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run);
+        transport.failWrites(OperationQueue.MAX_WRITE_ATTEMPTS);
+        device.setLeds(0x0f, 0xf0);
+        device.attach(transport);
+
+        assertNull(transport.value(LED_BIT_CHAR_UUID));
+        assertEquals(0, device.getJournalSize());
+        assertTrue(device.isIdle());
+    }
+
+    @Test
+    public void rejectedWrite_isRetriedAfterReadCompletes() {
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run);
+        transport.rejectWrites(1);
+        device.setLeds(0x3c, 0xc3);
+        device.attach(transport);
+
+        assertEquals(List.of(LED_BIT_CHAR_UUID), transport.writeLog());
+        assertArrayEquals(BlinkyCommands.ledBits(0x3c, 0xc3), transport.value(LED_BIT_CHAR_UUID));
+        assertEquals(0, device.getJournalSize());
+        assertTrue(device.isIdle());
+    }
+
+    @Test
+    public void refusedWrite_doesNotBlockOtherCommands() {
+        final AtomicReference<String> store = new AtomicReference<>();
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, store::set), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run)
+                .withoutCharacteristic(LED_DIM_LEVEL_CHAR_UUID);
+        device.setDimLevel(10);
+        device.setLeds(0xff, 0);
+        device.attach(transport);
+        for (int i = 0; i < 5; i++) {
+            device.setBlinkMode(BlinkyCommands.MODE_RED_1 + i);
+        }
+
+        assertFalse(transport.writeLog().contains(LED_DIM_LEVEL_CHAR_UUID));
+        assertArrayEquals(BlinkyCommands.ledBits(0xff, 0), transport.value(LED_BIT_CHAR_UUID));
+        assertArrayEquals(BlinkyCommands.blinkMode(BlinkyCommands.MODE_RED_5), transport.value(LED_MODE_CHAR_UUID));
+        assertEquals(0, device.getJournalSize());
+        assertEquals("", store.get());
+        assertTrue(device.isIdle());
+    }
+
+    @Test
+    public void continuousCommands_doNotStarveReads() {
+        final Deque<Runnable> completions = new ArrayDeque<>();
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(completions::add);
+        device.attach(transport);
+        while (!completions.isEmpty()) {
+            completions.poll().run();
+        }
+        assertTrue(device.isIdle());
+        transport.withValue(BATTERY_LEVEL_CHAR_UUID, new byte[]{42});
+
+        device.setLeds(1, 0);
+        device.refreshBatteryInfo();
+        // new LED state arrives before each completion, as when painting
+        for (int i = 2; i < 8; i++) {
+            device.setLeds(i, 0);
+            completions.poll().run();
+        }
+        assertEquals(42, device.getDeviceInfo().getBatteryLevel());
+        assertEquals(1, device.getJournalSize());
+    }
+
+    @Test
+    public void readsPopulateDeviceInfo() {
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), clock::get);
+        device.attach(new InMemoryTransport(Runnable::run)
+                .withValue(DI_FW_REV_CHAR_UUID, BlinkyCommands.encodeString("1.2.3"))
+                .withValue(DI_MF_NAME_CHAR_UUID, BlinkyCommands.encodeString("rkosegi"))
+                .withValue(BATTERY_VOLTAGE_CHAR_UUID, new byte[]{0x0f, (byte) 0xa0})
+                .withValue(BATTERY_LEVEL_CHAR_UUID, new byte[]{87}));
+
+        final DeviceInfoDto di = device.getDeviceInfo();
+        assertEquals("1.2.3", di.getFwRevision());
+        assertEquals("rkosegi", di.getManufacturerName());
+        assertEquals(4000, di.getBatteryVoltage());
+        assertEquals(87, di.getBatteryLevel());
+        assertTrue(di.getRuntimeEstimate() < 0);
+    }
+
+    @Test
+    public void batteryRefresh_feedsRuntimeEstimate() {
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run);
+        device.attach(transport);
+        // 1% per minute
+        for (int level = 100; level >= 50; level--) {
+            transport.withValue(BATTERY_LEVEL_CHAR_UUID, new byte[]{(byte) level});
+            device.refreshBatteryInfo();
+            clock.addAndGet(60_000L);
+        }
+        assertEquals(50 * 60_000.0, device.getDeviceInfo().getRuntimeEstimate(), 60_000.0);
+    }
+
+    @Test
+    public void batterySamples_goToJournaledProfileAfterRestart() {
+        final AtomicReference<String> store = new AtomicReference<>();
+        new BlinkyDevice(new CommandJournal(null, store::set), clock::get).setBlinkMode(BlinkyCommands.MODE_LEFT);
+
+        final BlinkyDevice restarted = new BlinkyDevice(new CommandJournal(store.get(), store::set), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run)
+                .withValue(LED_DIM_LEVEL_CHAR_UUID, BlinkyCommands.dimLevel(20));
+        restarted.attach(transport);
+        drainBattery(restarted, transport);
+        assertTrue(restarted.getDeviceInfo().getRuntimeEstimate() > 0);
+
+        // nothing was recorded under default profile
+        restarted.setBlinkMode(BlinkyCommands.MODE_STOP);
+        assertTrue(restarted.getDeviceInfo().getRuntimeEstimate() < 0);
+        restarted.setBlinkMode(BlinkyCommands.MODE_LEFT);
+        assertTrue(restarted.getDeviceInfo().getRuntimeEstimate() > 0);
+    }
+
+    @Test
+    public void batterySamples_areSkippedWhileProfileIsUnknown() {
+        final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}), clock::get);
+        final InMemoryTransport transport = new InMemoryTransport(Runnable::run)
+                .withoutCharacteristic(LED_MODE_CHAR_UUID);
+        device.attach(transport);
+        drainBattery(device, transport);
+        assertTrue(device.getDeviceInfo().getRuntimeEstimate() < 0);
+
+        // any known mode, unknown period was not attributed to it
+        device.setBlinkMode(BlinkyCommands.MODE_STOP);
+        assertTrue(device.getDeviceInfo().getRuntimeEstimate() < 0);
+    }
+
+    // 1% per minute, from 100% to 50%
+    private void drainBattery(BlinkyDevice device, InMemoryTransport transport) {
+        for (int level = 100; level >= 50; level--) {
+            transport.withValue(BATTERY_LEVEL_CHAR_UUID, new byte[]{(byte) level});
+            device.refreshBatteryInfo();
+            clock.addAndGet(60_000L);
+        }
+    }
+}
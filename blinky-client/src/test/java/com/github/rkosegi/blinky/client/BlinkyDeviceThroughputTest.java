@@ -0,0 +1,113 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+package com.github.rkosegi.blinky.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_BIT_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_DIM_LEVEL_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_MODE_CHAR_UUID;
+import static org.junit.Assert.*;
+
+/**
+ * Drives many simulated devices concurrently, completions are delivered from shared pool of "radio" threads.
+ * Every device gets rounds of commands to distinct characteristics and periodic battery refresh, round is
+ * complete once device is idle, so no command is collapsed and every operation must reach transport exactly once.
+ */
+public class BlinkyDeviceThroughputTest {
+    private static final int DEVICES = 200;
+    private static final int ROUNDS = 100;
+    private static final int BATTERY_REFRESH_EVERY = 10;
+    // device info, LED mode / dim level and battery reads issued once link is ready
+    private static final int READS_ON_READY = 6;
+    private static final int RADIO_THREADS = 4;
+    private static final int COMMAND_THREADS = 8;
+    private static final long TIMEOUT_MS = 30_000L;
+
+    @Test
+    public void manyDevices_completeEveryOperation() throws InterruptedException {
+        final ExecutorService radio = Executors.newFixedThreadPool(RADIO_THREADS);
+        final ExecutorService commanders = Executors.newFixedThreadPool(COMMAND_THREADS);
+        try {
+            final List<BlinkyDevice> devices = new ArrayList<>();
+            final List<InMemoryTransport> transports = new ArrayList<>();
+            for (int i = 0; i < DEVICES; i++) {
+                final BlinkyDevice device = new BlinkyDevice(new CommandJournal(null, encoded -> {}),
+                        System::currentTimeMillis);
+                final InMemoryTransport transport = new InMemoryTransport(radio);
+                devices.add(device);
+                transports.add(transport);
+                // half of devices gets first round before link is up
+                if (i % 2 == 0) {
+                    device.attach(transport);
+                }
+            }
+
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            for (BlinkyDevice device : devices) {
+                commanders.execute(() -> {
+                    for (int r = 1; r <= ROUNDS; r++) {
+                        device.setLeds(r, ~r);
+                        device.setBlinkMode(r % (BlinkyCommands.MODE_RIGHT + 1));
+                        device.setDimLevel(r);
+                        if (r % BATTERY_REFRESH_EVERY == 0) {
+                            device.refreshBatteryInfo();
+                        }
+                        if (!awaitIdle(device, deadline)) {
+                            return;
+                        }
+                    }
+                });
+            }
+            for (int i = 1; i < DEVICES; i += 2) {
+                devices.get(i).attach(transports.get(i));
+            }
+            commanders.shutdown();
+            assertTrue(commanders.awaitTermination(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+            for (int i = 0; i < DEVICES; i++) {
+                final BlinkyDevice device = devices.get(i);
+                final InMemoryTransport transport = transports.get(i);
+                assertTrue("device " + i + " did not settle in time", device.isIdle());
+                assertEquals(3 * ROUNDS, transport.writeLog().size());
+                assertEquals(READS_ON_READY + 2 * (ROUNDS / BATTERY_REFRESH_EVERY), transport.readCount());
+                assertArrayEquals(BlinkyCommands.ledBits(ROUNDS, ~ROUNDS), transport.value(LED_BIT_CHAR_UUID));
+                assertArrayEquals(BlinkyCommands.blinkMode(ROUNDS % (BlinkyCommands.MODE_RIGHT + 1)),
+                        transport.value(LED_MODE_CHAR_UUID));
+                assertArrayEquals(BlinkyCommands.dimLevel(ROUNDS), transport.value(LED_DIM_LEVEL_CHAR_UUID));
+            }
+        } finally {
+            radio.shutdownNow();
+            commanders.shutdownNow();
+        }
+    }
+
+    private static boolean awaitIdle(BlinkyDevice device, long deadline) {
+        while (!device.isIdle() || device.getLinkState() != LinkState.READY) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.yield();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import org.junit.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CommandJournalTest {
+    private static final UUID LED_BIT_CHAR_UUID = UUID.fromString("1e0b46a6-7f06-4fc6-a66e-a054b158828d");
+    private static final UUID LED_MODE_CHAR_UUID = UUID.fromString("d5dc531e-0c9a-4cd9-a696-4bcb8c5be548");
+
+    @Test
+    public void append_collapsesPerCharacteristic() {
+        final CommandJournal journal = new CommandJournal(null, encoded -> {});
+        journal.append(LED_BIT_CHAR_UUID, new byte[]{1, 0});
+        journal.append(LED_MODE_CHAR_UUID, new byte[]{11});
+        final byte[] latest = new byte[]{3, 0};
+        journal.append(LED_BIT_CHAR_UUID, latest);
+
+        assertEquals(2, journal.size());
+        assertEquals(LED_MODE_CHAR_UUID, journal.head().getKey());
+        journal.acknowledge(LED_MODE_CHAR_UUID, journal.head().getValue());
+        assertSame(latest, journal.head().getValue());
+    }
+
+    @Test
+    public void acknowledge_keepsSupersededEntry() {
+        final CommandJournal journal = new CommandJournal(null, encoded -> {});
+        final byte[] sent = new byte[]{1, 0};
+        journal.append(LED_BIT_CHAR_UUID, sent);
+        journal.append(LED_BIT_CHAR_UUID, new byte[]{2, 0});
+        journal.acknowledge(LED_BIT_CHAR_UUID, sent);
+
+        assertEquals(1, journal.size());
+        assertArrayEquals(new byte[]{2, 0}, journal.head().getValue());
+    }
+
+    @Test
+    public void persistedJournal_isRestored() {
+        final AtomicReference<String> store = new AtomicReference<>();
+        final CommandJournal journal = new CommandJournal(null, store::set);
+        journal.append(LED_BIT_CHAR_UUID, new byte[]{(byte) 0xff, 0x0a});
+        journal.append(LED_MODE_CHAR_UUID, new byte[]{12});
+
+        final CommandJournal restored = new CommandJournal(store.get(), encoded -> {});
+        assertEquals(2, restored.size());
+        assertEquals(LED_BIT_CHAR_UUID, restored.head().getKey());
+        assertArrayEquals(new byte[]{(byte) 0xff, 0x0a}, restored.head().getValue());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+Copyright 2025 Richard Kosegi
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package com.github.rkosegi.blinky.client;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.github.rkosegi.blinky.client.BlinkyService.BATTERY_LEVEL_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.BATTERY_VOLTAGE_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.DI_FW_REV_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.DI_MF_NAME_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_DIM_LEVEL_CHAR_UUID;
+import static com.github.rkosegi.blinky.client.BlinkyService.LED_MODE_CHAR_UUID;
+
+/**
+ * Simulated device, characteristic values are kept in memory.
+ * Like GATT, it refuses new operation while other one is in flight.
+ * Completions are delivered through given executor, which makes it either synchronous or asynchronous.
+ */
+final class InMemoryTransport implements Transport {
+    private final Executor executor;
+    private final Map<UUID, byte[]> values = new ConcurrentHashMap<>();
+    private final List<UUID> writeLog = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private final AtomicInteger failingWrites = new AtomicInteger();
+    private final AtomicInteger rejectedWrites = new AtomicInteger();
+    private final AtomicInteger completedReads = new AtomicInteger();
+    private final Set<UUID> unsupported = ConcurrentHashMap.newKeySet();
+    private volatile Listener listener;
+    private volatile boolean connected;
+
+    InMemoryTransport(Executor executor) {
+        this.executor = executor;
+        values.put(DI_FW_REV_CHAR_UUID, BlinkyCommands.encodeString("0.0.1"));
+        values.put(DI_MF_NAME_CHAR_UUID, BlinkyCommands.encodeString("in-memory"));
+        values.put(BATTERY_LEVEL_CHAR_UUID, new byte[]{100});
+        values.put(BATTERY_VOLTAGE_CHAR_UUID, new byte[]{0x10, 0x68});
+        values.put(LED_MODE_CHAR_UUID, BlinkyCommands.blinkMode(BlinkyCommands.MODE_STOP));
+        values.put(LED_DIM_LEVEL_CHAR_UUID, BlinkyCommands.dimLevel(0));
+    }
+
+    InMemoryTransport withValue(UUID characteristic, byte[] value) {
+        values.put(characteristic, value);
+        return this;
+    }
+
+    byte[] value(UUID characteristic) {
+        return values.get(characteristic);
+    }
+
+    List<UUID> writeLog() {
+        return writeLog;
+    }
+
+    int readCount() {
+        return completedReads.get();
+    }
+
+    /**
+     * Next {@code count} writes are issued, but completed with failure and their value is not stored.
+     */
+    void failWrites(int count) {
+        failingWrites.set(count);
+    }
+
+    /**
+     * Next {@code count} writes are refused, as if GATT stack was busy.
+     */
+    void rejectWrites(int count) {
+        rejectedWrites.set(count);
+    }
+
+    /**
+     * Reads and writes of given characteristic are always refused, as if device did not have it.
+     */
+    InMemoryTransport withoutCharacteristic(UUID characteristic) {
+        unsupported.add(characteristic);
+        return this;
+    }
+
+    void dropLink() {
+        connected = false;
+        busy.set(false);
+        deliver(l -> l.onLinkStateChanged(LinkState.DISCONNECTED));
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void connect() {
+        connected = true;
+        deliver(l -> {
+            l.onLinkStateChanged(LinkState.CONNECTING);
+            l.onLinkStateChanged(LinkState.READY);
+        });
+    }
+
+    @Override
+    public void close() {
+        connected = false;
+    }
+
+    @Override
+    public boolean read(UUID service, UUID characteristic) {
+        if (unsupported.contains(characteristic) || !connected || !busy.compareAndSet(false, true)) {
+            return false;
+        }
+        deliver(l -> {
+            busy.set(false);
+            final byte[] value = values.get(characteristic);
+            completedReads.incrementAndGet();
+            l.onReadComplete(service, characteristic, value, value != null);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean write(UUID service, UUID characteristic, byte[] value) {
+        if (unsupported.contains(characteristic) || rejectedWrites.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            return false;
+        }
+        if (!connected || !busy.compareAndSet(false, true)) {
+            return false;
+        }
+        final boolean success = failingWrites.getAndUpdate(n -> Math.max(0, n - 1)) == 0;
+        if (success) {
+            values.put(characteristic, value.clone());
+            writeLog.add(characteristic);
+        }
+        deliver(l -> {
+            busy.set(false);
+            l.onWriteComplete(service, characteristic, success);
+        });
+        return true;
+    }
+
+    private void deliver(Consumer<Listener> action) {
+        executor.execute(() -> {
+            final Listener l = listener;
+            if (l != null) {
+                action.accept(l);
+            }
+        });
+    }
+}